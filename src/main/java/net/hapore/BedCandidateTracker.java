@@ -0,0 +1,97 @@
+package net.hapore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BedCandidateTracker - Players that may be sleeping, so detection does not
+ * have to inspect everyone online.
+ *
+ * - A player becomes a candidate when they interact with a bed block
+ * - Candidates seen in bed are kept; the rest are dropped after a grace period
+ * - Disconnects remove the candidate right away
+ *
+ * Each candidate keeps the player handle it was touched with, so the caller
+ * walks only the candidates and checks which ones are in the world it checks.
+ * Safe to update from event threads while the world thread reads it.
+ */
+public final class BedCandidateTracker<P> {
+
+    private final long graceMillis;
+    private final Map<UUID, Candidate<P>> candidates = new ConcurrentHashMap<>();
+
+    public BedCandidateTracker(long graceMillis) {
+        this.graceMillis = graceMillis;
+    }
+
+    /**
+     * True for block ids with a "Bed" part, e.g. "Furniture_Village_Bed".
+     */
+    public static boolean isBedId(String blockId) {
+        if (blockId == null || blockId.isEmpty()) {
+            return false;
+        }
+        for (String part : blockId.split("[_:.\\-]")) {
+            if ("bed".equals(part.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the player as a candidate, or refreshes it if already one.
+     */
+    public void touch(UUID playerId, P player, long now) {
+        if (playerId != null && player != null) {
+            candidates.put(playerId, new Candidate<>(player, now));
+        }
+    }
+
+    public void remove(UUID playerId) {
+        if (playerId != null) {
+            candidates.remove(playerId);
+        }
+    }
+
+    public boolean contains(UUID playerId) {
+        return playerId != null && candidates.containsKey(playerId);
+    }
+
+    /**
+     * Current candidates, copied so the caller may touch or remove while
+     * walking them.
+     */
+    public List<P> players() {
+        List<P> players = new ArrayList<>(candidates.size());
+        for (Candidate<P> candidate : candidates.values()) {
+            players.add(candidate.player);
+        }
+        return players;
+    }
+
+    /**
+     * Drops candidates not touched within the grace period.
+     */
+    public void expire(long now) {
+        candidates.values().removeIf(candidate -> now - candidate.touchedAtMillis > graceMillis);
+    }
+
+    public boolean isEmpty() {
+        return candidates.isEmpty();
+    }
+
+    private static final class Candidate<P> {
+        final P player;
+        final long touchedAtMillis;
+
+        Candidate(P player, long touchedAtMillis) {
+            this.player = player;
+            this.touchedAtMillis = touchedAtMillis;
+        }
+    }
+}
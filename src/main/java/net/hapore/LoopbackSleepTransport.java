@@ -0,0 +1,49 @@
+package net.hapore;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * LoopbackSleepTransport - {@link SleepTransport} over UDP on 127.0.0.1.
+ *
+ * Each shard binds its own port on the loopback interface and sends every
+ * payload to the configured peer ports. Meant for shards running on the same
+ * host and for testing the coordination layer locally; shards on separate
+ * hosts use {@link UdpSleepTransport}.
+ */
+public final class LoopbackSleepTransport implements SleepTransport {
+
+    private final UdpSleepTransport delegate;
+
+    public LoopbackSleepTransport(int bindPort, List<Integer> peerPorts) {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        List<InetSocketAddress> peers = new ArrayList<>();
+        if (peerPorts != null) {
+            for (Integer port : peerPorts) {
+                if (port != null && port > 0 && port <= 65535 && port != bindPort) {
+                    peers.add(new InetSocketAddress(loopback, port));
+                }
+            }
+        }
+        this.delegate = new UdpSleepTransport(new InetSocketAddress(loopback, bindPort), peers);
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        delegate.start(receiver);
+    }
+
+    @Override
+    public void send(byte[] payload) {
+        delegate.send(payload);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
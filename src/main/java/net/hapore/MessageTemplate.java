@@ -0,0 +1,154 @@
+package net.hapore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.hypixel.hytale.server.core.Message;
+
+/**
+ * MessageTemplate - Chat template parsed once into styled text segments.
+ *
+ * Style tokens ({#RRGGBB}, {bold}, {/bold}, {italic}, {/italic}, {mono},
+ * {/mono}, {reset}) are resolved at compile time. Any other {token} is kept
+ * as text and replaced by its variable when rendering.
+ */
+public final class MessageTemplate {
+
+    private static final MessageTemplate EMPTY = new MessageTemplate(new ArrayList<>());
+
+    private final List<Segment> segments;
+
+    private MessageTemplate(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    public static MessageTemplate compile(String template) {
+        if (template == null || template.isBlank()) {
+            return EMPTY;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder buffer = new StringBuilder();
+        String color = null;
+        boolean bold = false;
+        boolean italic = false;
+        boolean mono = false;
+
+        int i = 0;
+        while (i < template.length()) {
+            int open = template.indexOf('{', i);
+            if (open == -1) {
+                buffer.append(template.substring(i));
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close == -1) {
+                buffer.append(template.substring(i));
+                break;
+            }
+            buffer.append(template, i, open);
+
+            String token = template.substring(open + 1, close).trim();
+            boolean styleToken = true;
+            String nextColor = color;
+            boolean nextBold = bold;
+            boolean nextItalic = italic;
+            boolean nextMono = mono;
+            if (token.startsWith("#")) {
+                nextColor = token;
+            } else if ("bold".equalsIgnoreCase(token)) {
+                nextBold = true;
+            } else if ("/bold".equalsIgnoreCase(token)) {
+                nextBold = false;
+            } else if ("italic".equalsIgnoreCase(token)) {
+                nextItalic = true;
+            } else if ("/italic".equalsIgnoreCase(token)) {
+                nextItalic = false;
+            } else if ("mono".equalsIgnoreCase(token)) {
+                nextMono = true;
+            } else if ("/mono".equalsIgnoreCase(token)) {
+                nextMono = false;
+            } else if ("reset".equalsIgnoreCase(token)) {
+                nextColor = null;
+                nextBold = false;
+                nextItalic = false;
+                nextMono = false;
+            } else {
+                styleToken = false;
+                buffer.append('{').append(token).append('}');
+            }
+
+            if (styleToken) {
+                if (buffer.length() > 0) {
+                    segments.add(new Segment(buffer.toString(), color, bold, italic, mono));
+                    buffer.setLength(0);
+                }
+                color = nextColor;
+                bold = nextBold;
+                italic = nextItalic;
+                mono = nextMono;
+            }
+
+            i = close + 1;
+        }
+
+        if (buffer.length() > 0) {
+            segments.add(new Segment(buffer.toString(), color, bold, italic, mono));
+        }
+        return new MessageTemplate(segments);
+    }
+
+    public Message render(Map<String, String> vars) {
+        if (segments.isEmpty()) {
+            return Message.raw("");
+        }
+
+        Message[] parts = new Message[segments.size()];
+        for (int i = 0; i < parts.length; i++) {
+            Segment segment = segments.get(i);
+            String text = segment.text;
+            if (segment.hasVariables) {
+                for (var entry : vars.entrySet()) {
+                    text = text.replace("{" + entry.getKey() + "}", entry.getValue());
+                }
+            }
+            parts[i] = segment.style(Message.raw(text));
+        }
+        return Message.join(parts);
+    }
+
+    private static final class Segment {
+        final String text;
+        final boolean hasVariables;
+        final String color;
+        final boolean bold;
+        final boolean italic;
+        final boolean mono;
+
+        Segment(String text, String color, boolean bold, boolean italic, boolean mono) {
+            this.text = text;
+            this.hasVariables = text.indexOf('{') >= 0;
+            this.color = color;
+            this.bold = bold;
+            this.italic = italic;
+            this.mono = mono;
+        }
+
+        Message style(Message message) {
+            if (color != null) {
+                message.color(color);
+            }
+            if (bold) {
+                message.bold(true);
+            }
+            if (italic) {
+                message.italic(true);
+            }
+            if (mono) {
+                message.monospace(true);
+            }
+            return message;
+        }
+    }
+}
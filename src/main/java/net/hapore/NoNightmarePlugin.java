@@ -1,18 +1,24 @@
 package net.hapore;
 
 import java.util.logging.Level;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
 import java.time.LocalTime;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -21,9 +27,12 @@ import javax.annotation.Nonnull;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3i;
 import com.hypixel.hytale.builtin.beds.sleep.components.PlayerSleep;
 import com.hypixel.hytale.builtin.beds.sleep.components.PlayerSomnolence;
 import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.HytaleServer;
 import com.hypixel.hytale.server.core.command.system.CommandManager;
 import com.hypixel.hytale.server.core.command.system.AbstractCommand;
@@ -32,11 +41,14 @@ import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredAr
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import com.hypixel.hytale.server.core.console.ConsoleSender;
 import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
+import com.hypixel.hytale.server.core.event.events.player.PlayerInteractEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerSetupConnectEvent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.modules.time.WorldTimeResource;
 
 /**
@@ -58,26 +70,25 @@ public class NoNightmarePlugin extends JavaPlugin {
     private static final int DEFAULT_NIGHT_END_HOUR = 4;
     private static final String DEFAULT_NIGHT_START_TIME = "18:00";
     private static final String DEFAULT_NIGHT_END_TIME = "04:47";
+    private static final int DEFAULT_COORDINATION_PORT = 25590;
+    private static final String TRANSPORT_LOOPBACK = "loopback";
+    private static final String TRANSPORT_UDP = "udp";
+    private static final String DEFAULT_COORDINATION_BIND_ADDRESS = "0.0.0.0";
+    private static final long BED_CANDIDATE_GRACE_MILLIS = 30000L;
+    private static final PluginConfig DEFAULT_CONFIG = new PluginConfig();
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
 
-    private float sleepPercentageRequired = (float) (DEFAULT_REQUIRED_PERCENT / 100.0);
-    private int skipDelaySeconds = DEFAULT_DELAY_SECONDS;
-    private int nightStartHour = DEFAULT_NIGHT_START_HOUR;
-    private int nightEndHour = DEFAULT_NIGHT_END_HOUR;
-    private LocalTime nightStartTime = LocalTime.parse(DEFAULT_NIGHT_START_TIME);
-    private LocalTime nightEndTime = LocalTime.parse(DEFAULT_NIGHT_END_TIME);
-    private String messageSleepStatusTemplate = "";
-    private String messageThresholdReachedTemplate = "";
-    private String messageThresholdLostTemplate = "";
-    private String messageNightSkippedTemplate = "";
-    private String messageSleepNotAllowedTemplate = "";
+    // Replaced as a whole, never mutated: readers take one snapshot per use
+    private volatile Settings settings = new Settings(DEFAULT_CONFIG);
+    private volatile SleepCoordinator coordinator;
     private ScheduledExecutorService scheduler;
+    private ExecutorService initExecutor;
+    private volatile CompletableFuture<Void> configReady = CompletableFuture.completedFuture(null);
+    private final StartupTimings startupTimings = new StartupTimings();
+    private volatile StartupTimings lastReloadTimings;
     private boolean lastCheckWasSleeping = false;
-    private int lastSleepingPlayers = -1;
-    private int lastTotalPlayers = -1;
-    private long thresholdReachedAtMillis = 0L;
-    private final Set<UUID> notifiedDaySleepers = new HashSet<>();
-    private long ignoreDaySleepUntilMillis = 0L;
+    private final SleepStateMachine sleepStateMachine = new SleepStateMachine();
+    private final BedCandidateTracker<Player> bedCandidates = new BedCandidateTracker<>(BED_CANDIDATE_GRACE_MILLIS);
 
     public NoNightmarePlugin(@Nonnull JavaPluginInit init) {
         super(init);
@@ -86,18 +97,46 @@ public class NoNightmarePlugin extends JavaPlugin {
     @Override
     protected void setup() {
         super.setup();
+        long setupStart = StartupTimings.now();
 
-        loadConfig();
+        // Config and templates load off the startup thread; defaults apply until then
+        initExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "NoNightmare-Init");
+            t.setDaemon(true);
+            return t;
+        });
+        configReady = loadConfigAsync(startupTimings);
+
+        long phaseStart = StartupTimings.now();
         registerCommands();
+        startupTimings.record("setup.commands", phaseStart);
 
         getLogger().at(Level.INFO).log("NoNightmare v" + PLUGIN_VERSION + " iniciado.");
-        getLogger().at(Level.FINE).log("Requerido: " + (sleepPercentageRequired * 100) + "% de jugadores.");
-        getLogger().at(Level.FINE).log("Delay: " + skipDelaySeconds + "s. Noche: " + nightStartTime + " - " + nightEndTime + ".");
 
+        phaseStart = StartupTimings.now();
         var eventRegistry = getEventRegistry();
         eventRegistry.register(PlayerSetupConnectEvent.class, (PlayerSetupConnectEvent event) -> {
             getLogger().at(Level.INFO).log("Player connected: " + event.getUsername());
         });
+        // Lying down starts with a bed interaction; only those players are inspected
+        eventRegistry.registerGlobal(PlayerInteractEvent.class, (PlayerInteractEvent event) -> {
+            Player player = event.getPlayer();
+            Vector3i target = event.getTargetBlock();
+            if (player == null || target == null) {
+                return;
+            }
+            if (isBedBlock(player.getWorld(), target)) {
+                bedCandidates.touch(player.getUuid(), player, System.currentTimeMillis());
+            }
+        });
+        eventRegistry.register(PlayerDisconnectEvent.class, (PlayerDisconnectEvent event) -> {
+            var playerRef = event.getPlayerRef();
+            if (playerRef != null) {
+                bedCandidates.remove(playerRef.getUuid());
+            }
+        });
+        startupTimings.record("setup.events", phaseStart);
+        startupTimings.record("setup.total", setupStart);
     }
 
     @Override
@@ -112,8 +151,23 @@ public class NoNightmarePlugin extends JavaPlugin {
         
 
         scheduler.scheduleAtFixedRate(() -> pollSleep(), 1, 1, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(() -> flushCoordination(), 500, 500, TimeUnit.MILLISECONDS);
 
         getLogger().at(Level.FINE).log("Sleep poller activo (cada 1s).");
+
+        // setup() has recorded its phases by now; the report also waits for the config
+        configReady.whenComplete((ignored, error) -> logStartupReport());
+        configReady.thenRun(() -> startCoordination());
+    }
+
+    private void logStartupReport() {
+        Settings loaded = settings;
+        getLogger().at(Level.FINE).log("Requerido: " + (loaded.sleepPercentageRequired * 100) + "% de jugadores.");
+        getLogger().at(Level.FINE).log("Delay: " + loaded.skipDelaySeconds + "s. Noche: " + loaded.nightStartTime
+                + " - " + loaded.nightEndTime + ".");
+        for (String line : startupTimings.report()) {
+            getLogger().at(Level.FINE).log("Arranque: " + line);
+        }
     }
 
     @Override
@@ -121,21 +175,140 @@ public class NoNightmarePlugin extends JavaPlugin {
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
+        if (initExecutor != null) {
+            initExecutor.shutdownNow();
+        }
+        stopCoordination();
         super.shutdown();
     }
 
-    private void loadConfig() {
+    private void startCoordination() {
+        Settings current = settings;
+        if (!current.coordinationEnabled || scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        String shardId = current.coordinationShardId.isBlank()
+                ? "shard-" + current.coordinationPort
+                : current.coordinationShardId;
+        SleepTransport transport = createTransport(current);
+        if (transport == null) {
+            return;
+        }
+        SleepCoordinator created = new SleepCoordinator(shardId, transport, this::handleRemoteSkip);
+        try {
+            created.start();
+            coordinator = created;
+            getLogger().at(Level.INFO).log("Coordinación activa como '" + shardId + "' (" + current.coordinationTransport
+                    + ") en el puerto " + current.coordinationPort + ".");
+        } catch (Exception e) {
+            created.close();
+            getLogger().at(Level.WARNING).log("No se pudo iniciar la coordinación: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the transport named by {@code coordinationTransport}: "loopback"
+     * for shards on this host, "udp" for shards on other hosts.
+     */
+    private SleepTransport createTransport(Settings current) {
+        if (TRANSPORT_LOOPBACK.equals(current.coordinationTransport)) {
+            return new LoopbackSleepTransport(current.coordinationPort, current.coordinationPeerPorts);
+        }
+        if (TRANSPORT_UDP.equals(current.coordinationTransport)) {
+            InetSocketAddress bindAddress;
+            try {
+                bindAddress = new InetSocketAddress(current.coordinationBindAddress, current.coordinationPort);
+            } catch (IllegalArgumentException e) {
+                bindAddress = null;
+            }
+            if (bindAddress == null || bindAddress.isUnresolved()) {
+                getLogger().at(Level.WARNING).log("Dirección de coordinación inválida: "
+                        + current.coordinationBindAddress);
+                return null;
+            }
+            List<InetSocketAddress> peers = new ArrayList<>();
+            for (String peer : current.coordinationPeers) {
+                InetSocketAddress address = UdpSleepTransport.parseAddress(peer);
+                if (address != null) {
+                    peers.add(address);
+                } else {
+                    getLogger().at(Level.WARNING).log("Peer de coordinación inválido: " + peer);
+                }
+            }
+            return new UdpSleepTransport(bindAddress, peers);
+        }
+        getLogger().at(Level.WARNING).log("Transporte de coordinación desconocido: " + current.coordinationTransport);
+        return null;
+    }
+
+    private void stopCoordination() {
+        SleepCoordinator current = coordinator;
+        coordinator = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void flushCoordination() {
+        SleepCoordinator current = coordinator;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.flush(System.currentTimeMillis());
+        } catch (Exception e) {
+            getLogger().at(Level.WARNING).log("Error in sleep coordination: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called from the transport thread when another shard skipped the night.
+     */
+    private void handleRemoteSkip(String shardId) {
+        World world = resolveWorld();
+        if (world == null) {
+            return;
+        }
+        world.execute(() -> {
+            Settings current = settings;
+            long now = System.currentTimeMillis();
+            if (sleepStateMachine.isInSkipGrace(now) || !isNightTime(world, current)) {
+                return; // Already day here
+            }
+            int sleepingPlayers = Math.max(0, sleepStateMachine.getLastSleepingPlayers());
+            int totalPlayers = Math.max(0, sleepStateMachine.getLastTotalPlayers());
+            float sleepPercentage = totalPlayers > 0 ? (float) sleepingPlayers / totalPlayers : 0.0f;
+            if (skipNight(world, current, now, sleepingPlayers, totalPlayers, sleepPercentage)) {
+                getLogger().at(Level.INFO).log("Noche omitida por el shard '" + shardId + "'.");
+            }
+        });
+    }
+
+    private CompletableFuture<Void> loadConfigAsync(StartupTimings timings) {
+        long start = StartupTimings.now();
+        return CompletableFuture.runAsync(() -> loadConfig(timings), initExecutor)
+                .whenComplete((ignored, error) -> {
+                    timings.record("config.ready", start);
+                    if (error != null) {
+                        getLogger().at(Level.WARNING).log("No se pudo cargar la config: " + error.getMessage());
+                    }
+                });
+    }
+
+    private void loadConfig(StartupTimings timings) {
         Path dataDir = getDataDirectory();
         Path configPath = dataDir.resolve(CONFIG_FILE_NAME);
         PluginConfig config = new PluginConfig();
-        PluginConfig defaultConfig = new PluginConfig();
         boolean shouldWriteDefault = false;
         boolean shouldUpdateConfig = false;
 
         try {
+            long phaseStart = StartupTimings.now();
             Files.createDirectories(dataDir);
             if (Files.exists(configPath)) {
                 String json = Files.readString(configPath, StandardCharsets.UTF_8);
+                timings.record("config.read", phaseStart);
+                phaseStart = StartupTimings.now();
                 try {
                     PluginConfig parsed = gson.fromJson(json, PluginConfig.class);
                     if (parsed != null) {
@@ -145,6 +318,7 @@ public class NoNightmarePlugin extends JavaPlugin {
                     getLogger().at(Level.WARNING).log("Config inválida, se usan valores por defecto.");
                     shouldWriteDefault = true;
                 }
+                timings.record("config.parse", phaseStart);
             } else {
                 shouldWriteDefault = true;
             }
@@ -153,29 +327,18 @@ public class NoNightmarePlugin extends JavaPlugin {
             shouldWriteDefault = true;
         }
 
-        double percent = config.requiredSleepPercent;
-        if (Double.isNaN(percent) || Double.isInfinite(percent)) {
-            percent = DEFAULT_REQUIRED_PERCENT;
-        }
-        percent = Math.max(0.0, Math.min(100.0, percent));
-        sleepPercentageRequired = (float) (percent / 100.0);
-
-        skipDelaySeconds = Math.max(0, config.skipDelaySeconds);
-        nightStartHour = clampHour(config.nightStartHour, DEFAULT_NIGHT_START_HOUR);
-        nightEndHour = clampHour(config.nightEndHour, DEFAULT_NIGHT_END_HOUR);
-        nightStartTime = parseTimeOrFallback(config.nightStartTime, nightStartHour, DEFAULT_NIGHT_START_TIME);
-        nightEndTime = parseTimeOrFallback(config.nightEndTime, nightEndHour, DEFAULT_NIGHT_END_TIME);
+        Settings loaded = new Settings(config);
 
-        if (config.skipDelaySeconds != skipDelaySeconds) {
-            config.skipDelaySeconds = skipDelaySeconds;
+        if (config.skipDelaySeconds != loaded.skipDelaySeconds) {
+            config.skipDelaySeconds = loaded.skipDelaySeconds;
             shouldUpdateConfig = true;
         }
-        if (config.nightStartHour != nightStartHour) {
-            config.nightStartHour = nightStartHour;
+        if (config.nightStartHour != loaded.nightStartHour) {
+            config.nightStartHour = loaded.nightStartHour;
             shouldUpdateConfig = true;
         }
-        if (config.nightEndHour != nightEndHour) {
-            config.nightEndHour = nightEndHour;
+        if (config.nightEndHour != loaded.nightEndHour) {
+            config.nightEndHour = loaded.nightEndHour;
             shouldUpdateConfig = true;
         }
         if (config.nightStartTime == null || config.nightStartTime.isBlank()) {
@@ -186,50 +349,101 @@ public class NoNightmarePlugin extends JavaPlugin {
             config.nightEndTime = DEFAULT_NIGHT_END_TIME;
             shouldUpdateConfig = true;
         }
-
-        messageSleepStatusTemplate = config.messageSleepStatus != null ? config.messageSleepStatus : defaultConfig.messageSleepStatus;
-        messageThresholdReachedTemplate = config.messageThresholdReached != null ? config.messageThresholdReached : defaultConfig.messageThresholdReached;
-        messageThresholdLostTemplate = config.messageThresholdLost != null ? config.messageThresholdLost : defaultConfig.messageThresholdLost;
-        messageNightSkippedTemplate = config.messageNightSkipped != null ? config.messageNightSkipped : defaultConfig.messageNightSkipped;
-        messageSleepNotAllowedTemplate = config.messageSleepNotAllowed != null ? config.messageSleepNotAllowed : defaultConfig.messageSleepNotAllowed;
-
+        if (config.coordinationShardId == null) {
+            config.coordinationShardId = loaded.coordinationShardId;
+            shouldUpdateConfig = true;
+        }
+        if (config.coordinationTransport == null || config.coordinationTransport.isBlank()) {
+            config.coordinationTransport = loaded.coordinationTransport;
+            shouldUpdateConfig = true;
+        }
+        if (config.coordinationBindAddress == null || config.coordinationBindAddress.isBlank()) {
+            config.coordinationBindAddress = loaded.coordinationBindAddress;
+            shouldUpdateConfig = true;
+        }
+        if (config.coordinationPort != loaded.coordinationPort) {
+            config.coordinationPort = loaded.coordinationPort;
+            shouldUpdateConfig = true;
+        }
+        if (config.coordinationPeerPorts == null) {
+            config.coordinationPeerPorts = new ArrayList<>(loaded.coordinationPeerPorts);
+            shouldUpdateConfig = true;
+        }
+        if (config.coordinationPeers == null) {
+            config.coordinationPeers = new ArrayList<>(loaded.coordinationPeers);
+            shouldUpdateConfig = true;
+        }
         if (config.messageSleepStatus == null) {
-            config.messageSleepStatus = messageSleepStatusTemplate;
+            config.messageSleepStatus = loaded.messageSleepStatusTemplate;
             shouldUpdateConfig = true;
         }
         if (config.messageThresholdReached == null) {
-            config.messageThresholdReached = messageThresholdReachedTemplate;
+            config.messageThresholdReached = loaded.messageThresholdReachedTemplate;
             shouldUpdateConfig = true;
         }
         if (config.messageThresholdLost == null) {
-            config.messageThresholdLost = messageThresholdLostTemplate;
+            config.messageThresholdLost = loaded.messageThresholdLostTemplate;
             shouldUpdateConfig = true;
         }
         if (config.messageNightSkipped == null) {
-            config.messageNightSkipped = messageNightSkippedTemplate;
+            config.messageNightSkipped = loaded.messageNightSkippedTemplate;
             shouldUpdateConfig = true;
         }
         if (config.messageSleepNotAllowed == null) {
-            config.messageSleepNotAllowed = messageSleepNotAllowedTemplate;
+            config.messageSleepNotAllowed = loaded.messageSleepNotAllowedTemplate;
             shouldUpdateConfig = true;
         }
 
+        long phaseStart = StartupTimings.now();
+        loaded.templates();
+        timings.record("templates.compile", phaseStart);
+
+        // Publish everything at once so the world thread never sees a half-applied config
+        settings = loaded;
+
         if (shouldWriteDefault || shouldUpdateConfig) {
+            phaseStart = StartupTimings.now();
             try {
                 String json = gson.toJson(config);
                 Files.writeString(configPath, json, StandardCharsets.UTF_8);
             } catch (Exception e) {
                 getLogger().at(Level.WARNING).log("No se pudo escribir la config: " + e.getMessage());
             }
+            timings.record("config.write", phaseStart);
         }
     }
 
-    private void reloadConfigAndState() {
-        loadConfig();
-        lastCheckWasSleeping = false;
-        lastSleepingPlayers = -1;
-        lastTotalPlayers = -1;
-        thresholdReachedAtMillis = 0L;
+    private CompletableFuture<Void> reloadConfigAndState() {
+        StartupTimings timings = new StartupTimings();
+        lastReloadTimings = timings;
+        long start = StartupTimings.now();
+        // Wait for any load still in flight so the two cannot interleave
+        CompletableFuture<Void> reloaded = configReady
+                .exceptionally(error -> null)
+                .thenCompose(ignored -> loadConfigAsync(timings))
+                .thenRun(() -> {
+                    resetSleepState();
+                    if (scheduler != null) {
+                        stopCoordination();
+                        startCoordination();
+                    }
+                    timings.record("reload.total", start);
+                });
+        configReady = reloaded;
+        return reloaded;
+    }
+
+    private void resetSleepState() {
+        Runnable reset = () -> {
+            lastCheckWasSleeping = false;
+            sleepStateMachine.reset();
+        };
+        World world = resolveWorld();
+        if (world != null) {
+            world.execute(reset);
+        } else {
+            reset.run();
+        }
     }
 
     private void registerCommands() {
@@ -249,15 +463,15 @@ public class NoNightmarePlugin extends JavaPlugin {
         AbstractCommand reload = new AbstractCommand("reload", "Recarga la configuración", false) {
             @Override
             protected CompletableFuture<Void> execute(CommandContext context) {
-                reloadConfigAndState();
-                Message prefix = Message.join(
-                        Message.raw("[").color("#6B7280"),
-                        Message.raw("NoNightmare").color("#7C3AED").bold(true),
-                        Message.raw("] ").color("#6B7280"));
-                Message body = Message.raw("Configuración recargada.").color("#22C55E").bold(true);
-                context.sendMessage(Message.join(prefix, body));
-                getLogger().at(Level.INFO).log("Configuración recargada por comando.");
-                return CompletableFuture.completedFuture(null);
+                return reloadConfigAndState().thenRun(() -> {
+                    Message prefix = Message.join(
+                            Message.raw("[").color("#6B7280"),
+                            Message.raw("NoNightmare").color("#7C3AED").bold(true),
+                            Message.raw("] ").color("#6B7280"));
+                    Message body = Message.raw("Configuración recargada.").color("#22C55E").bold(true);
+                    context.sendMessage(Message.join(prefix, body));
+                    getLogger().at(Level.INFO).log("Configuración recargada por comando.");
+                });
             }
         };
         reload.requirePermission(getBasePermission() + ".reload");
@@ -274,18 +488,19 @@ public class NoNightmarePlugin extends JavaPlugin {
                     return CompletableFuture.completedFuture(null);
                 }
                 double clamped = Math.max(0.0, Math.min(100.0, value));
-                sleepPercentageRequired = (float) (clamped / 100.0);
-                saveConfig();
-
-                Message prefix = Message.join(
-                        Message.raw("[").color("#6B7280"),
-                        Message.raw("NoNightmare").color("#7C3AED").bold(true),
-                        Message.raw("] ").color("#6B7280"));
-                Message body = Message.raw("Sleep percent set to " + String.format("%.1f", clamped) + "%.")
-                        .color("#22C55E")
-                        .bold(true);
-                context.sendMessage(Message.join(prefix, body));
-                return CompletableFuture.completedFuture(null);
+                // Let a pending load finish first so it does not overwrite the new value
+                return configReady.exceptionally(error -> null).thenRun(() -> {
+                    updateSettings(config -> config.requiredSleepPercent = clamped);
+
+                    Message prefix = Message.join(
+                            Message.raw("[").color("#6B7280"),
+                            Message.raw("NoNightmare").color("#7C3AED").bold(true),
+                            Message.raw("] ").color("#6B7280"));
+                    Message body = Message.raw("Sleep percent set to " + String.format("%.1f", clamped) + "%.")
+                            .color("#22C55E")
+                            .bold(true);
+                    context.sendMessage(Message.join(prefix, body));
+                });
             }
         };
         setPercent.requirePermission(getBasePermission() + ".setpercent");
@@ -302,22 +517,31 @@ public class NoNightmarePlugin extends JavaPlugin {
                     return CompletableFuture.completedFuture(null);
                 }
                 int clamped = Math.max(0, value);
-                skipDelaySeconds = clamped;
-                saveConfig();
-
-                Message prefix = Message.join(
-                        Message.raw("[").color("#6B7280"),
-                        Message.raw("NoNightmare").color("#7C3AED").bold(true),
-                        Message.raw("] ").color("#6B7280"));
-                Message body = Message.raw("Delay set to " + clamped + "s.")
-                        .color("#22C55E")
-                        .bold(true);
-                context.sendMessage(Message.join(prefix, body));
-                return CompletableFuture.completedFuture(null);
+                return configReady.exceptionally(error -> null).thenRun(() -> {
+                    updateSettings(config -> config.skipDelaySeconds = clamped);
+
+                    Message prefix = Message.join(
+                            Message.raw("[").color("#6B7280"),
+                            Message.raw("NoNightmare").color("#7C3AED").bold(true),
+                            Message.raw("] ").color("#6B7280"));
+                    Message body = Message.raw("Delay set to " + clamped + "s.")
+                            .color("#22C55E")
+                            .bold(true);
+                    context.sendMessage(Message.join(prefix, body));
+                });
             }
         };
         setDelay.requirePermission(getBasePermission() + ".setdelay");
 
+        AbstractCommand timings = new AbstractCommand("timings", "Show startup and reload timings", false) {
+            @Override
+            protected CompletableFuture<Void> execute(CommandContext context) {
+                sendTimings(context);
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        timings.requirePermission(getBasePermission() + ".timings");
+
         AbstractCommand help = new AbstractCommand("help", "Show help", false) {
             @Override
             protected CompletableFuture<Void> execute(CommandContext context) {
@@ -329,6 +553,7 @@ public class NoNightmarePlugin extends JavaPlugin {
         root.addSubCommand(reload);
         root.addSubCommand(setPercent);
         root.addSubCommand(setDelay);
+        root.addSubCommand(timings);
         root.addSubCommand(help);
         registry.registerCommand(root);
     }
@@ -345,11 +570,48 @@ public class NoNightmarePlugin extends JavaPlugin {
         context.sendMessage(Message.raw("/nonightmare setpercent <0-100> - Set required sleep percentage.").color("#E5E7EB"));
         context.sendMessage(Message.raw("/nonightmare setdelay <seconds> - Set delay before sunrise (recommend 2-3s max).")
                 .color("#E5E7EB"));
+        context.sendMessage(Message.raw("/nonightmare timings - Show startup and reload time per phase.").color("#E5E7EB"));
     }
 
-    private void saveConfig() {
+    private void sendTimings(CommandContext context) {
+        Message header = Message.join(
+                Message.raw("[").color("#6B7280"),
+                Message.raw("NoNightmare").color("#7C3AED").bold(true),
+                Message.raw("] ").color("#6B7280"),
+                Message.raw("Timings").color("#E5E7EB").bold(true));
+        context.sendMessage(header);
+        sendTimingSection(context, "Startup (setup.* on the startup thread, config.* in background)", startupTimings);
+        StartupTimings reloadTimings = lastReloadTimings;
+        if (reloadTimings != null) {
+            sendTimingSection(context, "Last reload", reloadTimings);
+        }
+    }
+
+    private void sendTimingSection(CommandContext context, String title, StartupTimings timings) {
+        context.sendMessage(Message.raw(title + ":").color("#9CA3AF"));
+        if (timings.isEmpty()) {
+            context.sendMessage(Message.raw("  (pending)").color("#E5E7EB"));
+            return;
+        }
+        for (String line : timings.report()) {
+            context.sendMessage(Message.raw("  " + line).color("#E5E7EB"));
+        }
+    }
+
+    /**
+     * Applies a change to the current settings, publishes the result and saves it.
+     */
+    private synchronized void updateSettings(Consumer<PluginConfig> change) {
+        PluginConfig config = settings.toConfig();
+        change.accept(config);
+        Settings updated = new Settings(config);
+        settings = updated;
+        saveConfig(updated);
+    }
+
+    private void saveConfig(Settings current) {
         try {
-            PluginConfig config = buildCurrentConfig();
+            PluginConfig config = current.toConfig();
             Path dataDir = getDataDirectory();
             Files.createDirectories(dataDir);
             Path configPath = dataDir.resolve(CONFIG_FILE_NAME);
@@ -360,22 +622,6 @@ public class NoNightmarePlugin extends JavaPlugin {
         }
     }
 
-    private PluginConfig buildCurrentConfig() {
-        PluginConfig config = new PluginConfig();
-        config.requiredSleepPercent = sleepPercentageRequired * 100.0;
-        config.skipDelaySeconds = skipDelaySeconds;
-        config.nightStartHour = nightStartHour;
-        config.nightEndHour = nightEndHour;
-        config.nightStartTime = nightStartTime.toString();
-        config.nightEndTime = nightEndTime.toString();
-        config.messageSleepStatus = messageSleepStatusTemplate;
-        config.messageThresholdReached = messageThresholdReachedTemplate;
-        config.messageThresholdLost = messageThresholdLostTemplate;
-        config.messageNightSkipped = messageNightSkippedTemplate;
-        config.messageSleepNotAllowed = messageSleepNotAllowedTemplate;
-        return config;
-    }
-
     /**
      * Poll all players to detect sleeping and skip night if threshold is met.
      * Uses mount entity ID as sleep indicator (players in beds are mounted to bed
@@ -389,80 +635,78 @@ public class NoNightmarePlugin extends JavaPlugin {
                 return;
             }
 
-            // Get the default world
-            Universe universe = Universe.get();
-            if (universe == null) {
-                return;
-            }
-
-            World selectedWorld = universe.getDefaultWorld();
-            if (selectedWorld == null) {
-                selectedWorld = universe.getWorld("default");
-            }
-            if (selectedWorld == null) {
+            World world = resolveWorld();
+            if (world == null) {
                 return;
             }
 
-            World world = selectedWorld;
             world.execute(() -> checkSleep(world));
         } catch (Exception e) {
             getLogger().at(Level.WARNING).log("Error in sleep polling: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("removal")
+    private World resolveWorld() {
+        // Get the default world
+        Universe universe = Universe.get();
+        if (universe == null) {
+            return null;
+        }
+
+        World selectedWorld = universe.getDefaultWorld();
+        if (selectedWorld == null) {
+            selectedWorld = universe.getWorld("default");
+        }
+        return selectedWorld;
+    }
+
     private void checkSleep(World world) {
+        // One clock read per poll: expiry, staleness and countdown all use it
+        long now = System.currentTimeMillis();
+
         // Get all players
         var players = world.getPlayers();
         int totalPlayers = players.size();
+        SleepCoordinator coordinator = this.coordinator;
+        Settings current = settings;
 
         if (totalPlayers == 0) {
+            if (coordinator != null) {
+                coordinator.publishLocal(0, 0);
+            }
             return; // No players online
         }
 
+        // Only bed candidates are inspected, and only those in this world
         int sleepingPlayers = 0;
-        List<Player> sleepingPlayersList = new ArrayList<>();
-        Set<UUID> currentSleepingIds = new HashSet<>();
-        var store = world.getEntityStore().getStore();
-
-        for (Player player : players) {
-            boolean isSleeping = false;
+        Map<UUID, Player> sleepingPlayersById = new LinkedHashMap<>();
 
-            try {
-                int mountId = player.getMountEntityId();
-                if (mountId > 0) {
-                    isSleeping = true;
+        if (!bedCandidates.isEmpty()) {
+            var store = world.getEntityStore().getStore();
+            for (Player player : bedCandidates.players()) {
+                if (player.getWorld() != world) {
+                    continue;
                 }
-            } catch (Exception e) {
-                // Ignore mount failures
-            }
-
-            if (!isSleeping) {
-                try {
-                    var ref = player.getReference();
-                    if (ref != null) {
-                        var somnolence = store.getComponent(ref, PlayerSomnolence.getComponentType());
-                        if (somnolence != null) {
-                            PlayerSleep state = somnolence.getSleepState();
-                            if (state instanceof PlayerSleep.Slumber || state instanceof PlayerSleep.NoddingOff) {
-                                isSleeping = true;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore component failures
+                if (isPlayerSleeping(player, store)) {
+                    UUID playerId = player.getUuid();
+                    sleepingPlayers++;
+                    sleepingPlayersById.put(playerId, player);
+                    bedCandidates.touch(playerId, player, now);
                 }
             }
+            bedCandidates.expire(now);
+        }
 
-            if (isSleeping) {
-                sleepingPlayers++;
-                sleepingPlayersList.add(player);
-                currentSleepingIds.add(player.getUuid());
-            }
+        if (coordinator != null) {
+            // Decide on the counts of every shard sharing this day/night cycle
+            coordinator.publishLocal(sleepingPlayers, totalPlayers);
+            SleepCoordinator.Totals totals = coordinator.totals(now, sleepingPlayers, totalPlayers);
+            sleepingPlayers = totals.sleeping;
+            totalPlayers = totals.online;
         }
 
         float sleepPercentage = (float) sleepingPlayers / totalPlayers;
-        boolean isNight = isNightTime(world);
+        boolean isNight = isNightTime(world, current);
 
         if (sleepingPlayers > 0) {
             if (!lastCheckWasSleeping) {
@@ -475,74 +719,96 @@ public class NoNightmarePlugin extends JavaPlugin {
             lastCheckWasSleeping = false;
         }
 
-        if (sleepingPlayers == 0) {
-            notifiedDaySleepers.clear();
-        } else {
-            notifiedDaySleepers.retainAll(currentSleepingIds);
-        }
-
-        if (isNight && (sleepingPlayers != lastSleepingPlayers || totalPlayers != lastTotalPlayers)) {
-            sendSleepStatusMessage(world, sleepingPlayers, totalPlayers, sleepPercentage);
-            lastSleepingPlayers = sleepingPlayers;
-            lastTotalPlayers = totalPlayers;
-        }
-
-        if (!isNight && sleepingPlayers > 0) {
-            if (System.currentTimeMillis() < ignoreDaySleepUntilMillis) {
-                lastSleepingPlayers = sleepingPlayers;
-                lastTotalPlayers = totalPlayers;
-                thresholdReachedAtMillis = 0L;
-                return;
-            }
-            for (Player player : sleepingPlayersList) {
-                UUID playerId = player.getUuid();
-                if (!notifiedDaySleepers.contains(playerId)) {
-                    sendSleepNotAllowedMessage(player);
-                    notifiedDaySleepers.add(playerId);
-                }
+        SleepStateMachine.Settings settings =
+                new SleepStateMachine.Settings(current.sleepPercentageRequired, (long) current.skipDelaySeconds * 1000L);
+        var actions = sleepStateMachine.evaluate(now, isNight, sleepingPlayersById.keySet(),
+                sleepingPlayers, totalPlayers, settings);
+
+        for (SleepStateMachine.Action action : actions) {
+            switch (action.type) {
+                case STATUS:
+                    sendSleepStatusMessage(world, current, action.sleeping, action.total, action.percentage);
+                    break;
+                case THRESHOLD_REACHED:
+                    sendThresholdReachedMessage(world, current);
+                    break;
+                case CANCEL:
+                    sendThresholdLostMessage(world, current);
+                    break;
+                case NOTIFY:
+                    Player player = sleepingPlayersById.get(action.playerId);
+                    if (player != null) {
+                        sendSleepNotAllowedMessage(player, current);
+                    }
+                    break;
+                case SKIP:
+                    if (skipNight(world, current, now, action.sleeping, action.total, action.percentage)) {
+                        getLogger().at(Level.INFO).log("Noche omitida por sueño suficiente.");
+                        if (coordinator != null) {
+                            coordinator.publishSkip();
+                        }
+                    }
+                    break;
+                default:
+                    break;
             }
-            lastSleepingPlayers = sleepingPlayers;
-            lastTotalPlayers = totalPlayers;
-            thresholdReachedAtMillis = 0L;
-            return;
         }
+    }
 
-        boolean thresholdMet = sleepPercentage >= sleepPercentageRequired && sleepingPlayers > 0;
-
-        if (!isNight) {
-            thresholdReachedAtMillis = 0L;
-            return;
+    private boolean isBedBlock(World world, Vector3i position) {
+        if (world == null) {
+            return false;
+        }
+        try {
+            BlockType blockType = world.getBlockType(position.getX(), position.getY(), position.getZ());
+            return blockType != null && BedCandidateTracker.isBedId(blockType.getId());
+        } catch (Exception e) {
+            return false;
         }
+    }
 
-        if (thresholdMet) {
-            if (thresholdReachedAtMillis == 0L) {
-                thresholdReachedAtMillis = System.currentTimeMillis();
-                sendThresholdReachedMessage(world, skipDelaySeconds);
+    @SuppressWarnings("removal")
+    private boolean isPlayerSleeping(Player player, Store<EntityStore> store) {
+        try {
+            int mountId = player.getMountEntityId();
+            if (mountId > 0) {
+                return true;
             }
-        } else if (thresholdReachedAtMillis != 0L) {
-            thresholdReachedAtMillis = 0L;
-            sendThresholdLostMessage(world);
+        } catch (Exception e) {
+            // Ignore mount failures
         }
 
-        if (thresholdReachedAtMillis != 0L) {
-            long elapsed = System.currentTimeMillis() - thresholdReachedAtMillis;
-            if (elapsed >= (long) skipDelaySeconds * 1000L) {
-                try {
-                    CommandManager.get().handleCommand(ConsoleSender.INSTANCE, "time set day");
-                    sendNightSkippedMessage(world, sleepingPlayers, totalPlayers, sleepPercentage);
-                    getLogger().at(Level.INFO).log("Noche omitida por sueño suficiente.");
-                    lastCheckWasSleeping = false;
-                    ignoreDaySleepUntilMillis = System.currentTimeMillis() + 2000L;
-                    thresholdReachedAtMillis = 0L;
-                } catch (Exception e) {
-                    getLogger().at(Level.WARNING).log("Failed to skip night: " + e.getMessage());
+        try {
+            var ref = player.getReference();
+            if (ref != null) {
+                var somnolence = store.getComponent(ref, PlayerSomnolence.getComponentType());
+                if (somnolence != null) {
+                    PlayerSleep state = somnolence.getSleepState();
+                    return state instanceof PlayerSleep.Slumber || state instanceof PlayerSleep.NoddingOff;
                 }
             }
+        } catch (Exception e) {
+            // Ignore component failures
+        }
+        return false;
+    }
+
+    private boolean skipNight(World world, Settings current, long now, int sleepingPlayers, int totalPlayers,
+            float sleepPercentage) {
+        try {
+            CommandManager.get().handleCommand(ConsoleSender.INSTANCE, "time set day");
+            sendNightSkippedMessage(world, current, sleepingPlayers, totalPlayers, sleepPercentage);
+            lastCheckWasSleeping = false;
+            sleepStateMachine.nightSkipped(now);
+            return true;
+        } catch (Exception e) {
+            getLogger().at(Level.WARNING).log("Failed to skip night: " + e.getMessage());
+            return false;
         }
     }
 
     public float getSleepPercentageRequired() {
-        return sleepPercentageRequired;
+        return settings.sleepPercentageRequired;
     }
 
     @Override
@@ -562,16 +828,23 @@ public class NoNightmarePlugin extends JavaPlugin {
         public String messageThresholdLost = "{#6B7280}[{#7C3AED}{bold}NoNightmare{/bold}{#6B7280}] {#EF4444}{bold}El umbral dejó de cumplirse.{/bold}";
         public String messageNightSkipped = "{#6B7280}[{#7C3AED}{bold}NoNightmare{/bold}{#6B7280}] {#22C55E}{bold}¡Buenos días!{/bold} {#E5E7EB}Se alcanzó {#38BDF8}{bold}{percent}{/bold}% {#9CA3AF}({#22C55E}{bold}{sleeping}{/bold}{#9CA3AF}/{#E5E7EB}{total}{#9CA3AF})";
         public String messageSleepNotAllowed = "{#6B7280}[{#7C3AED}{bold}NoNightmare{/bold}{#6B7280}] {#F59E0B}{bold}Solo puedes dormir para hacer de Día durante la noche.{/bold}";
+        public boolean coordinationEnabled = false;
+        public String coordinationShardId = "";
+        public String coordinationTransport = TRANSPORT_LOOPBACK;
+        public String coordinationBindAddress = DEFAULT_COORDINATION_BIND_ADDRESS;
+        public int coordinationPort = DEFAULT_COORDINATION_PORT;
+        public List<Integer> coordinationPeerPorts = new ArrayList<>();
+        public List<String> coordinationPeers = new ArrayList<>();
     }
 
-    private int clampHour(int value, int fallback) {
+    private static int clampHour(int value, int fallback) {
         if (value < 0 || value > 23) {
             return fallback;
         }
         return value;
     }
 
-    private LocalTime parseTimeOrFallback(String value, int hourFallback, String defaultTime) {
+    private static LocalTime parseTimeOrFallback(String value, int hourFallback, String defaultTime) {
         if (value != null && !value.isBlank()) {
             try {
                 return LocalTime.parse(value.trim());
@@ -586,144 +859,199 @@ public class NoNightmarePlugin extends JavaPlugin {
         }
     }
 
-    private boolean isNightTime(World world) {
+    private boolean isNightTime(World world, Settings current) {
         try {
             var store = world.getEntityStore().getStore();
             WorldTimeResource time = store.getResource(WorldTimeResource.getResourceType());
             if (time == null) {
                 return true;
             }
-            LocalTime current = time.getGameDateTime().toLocalTime();
+            LocalTime now = time.getGameDateTime().toLocalTime();
+            LocalTime nightStartTime = current.nightStartTime;
+            LocalTime nightEndTime = current.nightEndTime;
             if (nightStartTime.equals(nightEndTime)) {
                 return false;
             }
             if (!nightStartTime.isAfter(nightEndTime)) {
-                return !current.isBefore(nightStartTime) && current.isBefore(nightEndTime);
+                return !now.isBefore(nightStartTime) && now.isBefore(nightEndTime);
             }
-            return !current.isBefore(nightStartTime) || current.isBefore(nightEndTime);
+            return !now.isBefore(nightStartTime) || now.isBefore(nightEndTime);
         } catch (Exception e) {
             return true;
         }
     }
 
-    private void sendSleepStatusMessage(World world, int sleepingPlayers, int totalPlayers, float sleepPercentage) {
-        Map<String, String> vars = baseVariables(sleepingPlayers, totalPlayers, sleepPercentage);
-        world.sendMessage(buildMessageFromTemplate(messageSleepStatusTemplate, vars));
+    private void sendSleepStatusMessage(World world, Settings current, int sleepingPlayers, int totalPlayers,
+            float sleepPercentage) {
+        Map<String, String> vars = baseVariables(current, sleepingPlayers, totalPlayers, sleepPercentage);
+        world.sendMessage(current.templates().sleepStatus.render(vars));
     }
 
-    private void sendThresholdReachedMessage(World world, int delaySeconds) {
-        Map<String, String> vars = baseVariables(0, 0, 0.0f);
-        vars.put("delay", String.valueOf(delaySeconds));
-        world.sendMessage(buildMessageFromTemplate(messageThresholdReachedTemplate, vars));
+    private void sendThresholdReachedMessage(World world, Settings current) {
+        Map<String, String> vars = baseVariables(current, 0, 0, 0.0f);
+        world.sendMessage(current.templates().thresholdReached.render(vars));
     }
 
-    private void sendThresholdLostMessage(World world) {
-        Map<String, String> vars = baseVariables(0, 0, 0.0f);
-        world.sendMessage(buildMessageFromTemplate(messageThresholdLostTemplate, vars));
+    private void sendThresholdLostMessage(World world, Settings current) {
+        Map<String, String> vars = baseVariables(current, 0, 0, 0.0f);
+        world.sendMessage(current.templates().thresholdLost.render(vars));
     }
 
-    private void sendSleepNotAllowedMessage(Player player) {
-        Map<String, String> vars = baseVariables(0, 0, 0.0f);
-        player.sendMessage(buildMessageFromTemplate(messageSleepNotAllowedTemplate, vars));
+    private void sendSleepNotAllowedMessage(Player player, Settings current) {
+        Map<String, String> vars = baseVariables(current, 0, 0, 0.0f);
+        player.sendMessage(current.templates().sleepNotAllowed.render(vars));
     }
 
-    private void sendNightSkippedMessage(World world, int sleepingPlayers, int totalPlayers, float sleepPercentage) {
-        Map<String, String> vars = baseVariables(sleepingPlayers, totalPlayers, sleepPercentage);
-        world.sendMessage(buildMessageFromTemplate(messageNightSkippedTemplate, vars));
+    private void sendNightSkippedMessage(World world, Settings current, int sleepingPlayers, int totalPlayers,
+            float sleepPercentage) {
+        Map<String, String> vars = baseVariables(current, sleepingPlayers, totalPlayers, sleepPercentage);
+        world.sendMessage(current.templates().nightSkipped.render(vars));
     }
 
-    private Map<String, String> baseVariables(int sleepingPlayers, int totalPlayers, float sleepPercentage) {
+    private Map<String, String> baseVariables(Settings current, int sleepingPlayers, int totalPlayers,
+            float sleepPercentage) {
         Map<String, String> vars = new HashMap<>();
         vars.put("sleeping", String.valueOf(sleepingPlayers));
         vars.put("total", String.valueOf(totalPlayers));
         vars.put("percent", String.format("%.1f", sleepPercentage * 100));
-        vars.put("required", String.format("%.1f", sleepPercentageRequired * 100));
-        vars.put("delay", String.valueOf(skipDelaySeconds));
+        vars.put("required", String.format("%.1f", current.sleepPercentageRequired * 100));
+        vars.put("delay", String.valueOf(current.skipDelaySeconds));
         return vars;
     }
 
-    private Message buildMessageFromTemplate(String template, Map<String, String> vars) {
-        if (template == null || template.isBlank()) {
-            return Message.raw("");
-        }
-
-        String resolved = template;
-        for (var entry : vars.entrySet()) {
-            resolved = resolved.replace("{" + entry.getKey() + "}", entry.getValue());
-        }
-
-        List<Message> parts = new ArrayList<>();
-        StringBuilder buffer = new StringBuilder();
-        String color = null;
-        boolean bold = false;
-        boolean italic = false;
-        boolean mono = false;
-
-        int i = 0;
-        while (i < resolved.length()) {
-            int open = resolved.indexOf('{', i);
-            if (open == -1) {
-                buffer.append(resolved.substring(i));
-                break;
-            }
-            int close = resolved.indexOf('}', open);
-            if (close == -1) {
-                buffer.append(resolved.substring(i));
-                break;
-            }
-            buffer.append(resolved.substring(i, open));
-            if (buffer.length() > 0) {
-                parts.add(applyStyle(Message.raw(buffer.toString()), color, bold, italic, mono));
-                buffer.setLength(0);
-            }
-
-            String token = resolved.substring(open + 1, close).trim();
-            if (token.startsWith("#")) {
-                color = token;
-            } else if ("bold".equalsIgnoreCase(token)) {
-                bold = true;
-            } else if ("/bold".equalsIgnoreCase(token)) {
-                bold = false;
-            } else if ("italic".equalsIgnoreCase(token)) {
-                italic = true;
-            } else if ("/italic".equalsIgnoreCase(token)) {
-                italic = false;
-            } else if ("mono".equalsIgnoreCase(token)) {
-                mono = true;
-            } else if ("/mono".equalsIgnoreCase(token)) {
-                mono = false;
-            } else if ("reset".equalsIgnoreCase(token)) {
-                color = null;
-                bold = false;
-                italic = false;
-                mono = false;
-            } else {
-                buffer.append('{').append(token).append('}');
+    /**
+     * Immutable view of the loaded config, published through {@link #settings}.
+     * Templates are compiled on first use, or right away by the config loader.
+     */
+    private static final class Settings {
+        final float sleepPercentageRequired;
+        final int skipDelaySeconds;
+        final int nightStartHour;
+        final int nightEndHour;
+        final LocalTime nightStartTime;
+        final LocalTime nightEndTime;
+        final String messageSleepStatusTemplate;
+        final String messageThresholdReachedTemplate;
+        final String messageThresholdLostTemplate;
+        final String messageNightSkippedTemplate;
+        final String messageSleepNotAllowedTemplate;
+        final boolean coordinationEnabled;
+        final String coordinationShardId;
+        final String coordinationTransport;
+        final String coordinationBindAddress;
+        final int coordinationPort;
+        final List<Integer> coordinationPeerPorts;
+        final List<String> coordinationPeers;
+        private volatile CompiledTemplates templates;
+
+        Settings(PluginConfig config) {
+            double percent = config.requiredSleepPercent;
+            if (Double.isNaN(percent) || Double.isInfinite(percent)) {
+                percent = DEFAULT_REQUIRED_PERCENT;
             }
-
-            i = close + 1;
+            percent = Math.max(0.0, Math.min(100.0, percent));
+            sleepPercentageRequired = (float) (percent / 100.0);
+
+            skipDelaySeconds = Math.max(0, config.skipDelaySeconds);
+            nightStartHour = clampHour(config.nightStartHour, DEFAULT_NIGHT_START_HOUR);
+            nightEndHour = clampHour(config.nightEndHour, DEFAULT_NIGHT_END_HOUR);
+            nightStartTime = parseTimeOrFallback(config.nightStartTime, nightStartHour, DEFAULT_NIGHT_START_TIME);
+            nightEndTime = parseTimeOrFallback(config.nightEndTime, nightEndHour, DEFAULT_NIGHT_END_TIME);
+
+            messageSleepStatusTemplate = config.messageSleepStatus != null
+                    ? config.messageSleepStatus : DEFAULT_CONFIG.messageSleepStatus;
+            messageThresholdReachedTemplate = config.messageThresholdReached != null
+                    ? config.messageThresholdReached : DEFAULT_CONFIG.messageThresholdReached;
+            messageThresholdLostTemplate = config.messageThresholdLost != null
+                    ? config.messageThresholdLost : DEFAULT_CONFIG.messageThresholdLost;
+            messageNightSkippedTemplate = config.messageNightSkipped != null
+                    ? config.messageNightSkipped : DEFAULT_CONFIG.messageNightSkipped;
+            messageSleepNotAllowedTemplate = config.messageSleepNotAllowed != null
+                    ? config.messageSleepNotAllowed : DEFAULT_CONFIG.messageSleepNotAllowed;
+
+            coordinationEnabled = config.coordinationEnabled;
+            coordinationShardId = config.coordinationShardId != null ? config.coordinationShardId.trim() : "";
+            coordinationTransport = config.coordinationTransport != null && !config.coordinationTransport.isBlank()
+                    ? config.coordinationTransport.trim().toLowerCase(Locale.ROOT)
+                    : TRANSPORT_LOOPBACK;
+            coordinationBindAddress = config.coordinationBindAddress != null && !config.coordinationBindAddress.isBlank()
+                    ? config.coordinationBindAddress.trim()
+                    : DEFAULT_COORDINATION_BIND_ADDRESS;
+            coordinationPort = config.coordinationPort > 0 && config.coordinationPort <= 65535
+                    ? config.coordinationPort
+                    : DEFAULT_COORDINATION_PORT;
+            List<Integer> peerPorts = new ArrayList<>();
+            if (config.coordinationPeerPorts != null) {
+                for (Integer port : config.coordinationPeerPorts) {
+                    if (port != null) {
+                        peerPorts.add(port);
+                    }
+                }
+            }
+            coordinationPeerPorts = Collections.unmodifiableList(peerPorts);
+            List<String> peers = new ArrayList<>();
+            if (config.coordinationPeers != null) {
+                for (String peer : config.coordinationPeers) {
+                    if (peer != null && !peer.isBlank()) {
+                        peers.add(peer.trim());
+                    }
+                }
+            }
+            coordinationPeers = Collections.unmodifiableList(peers);
         }
 
-        if (buffer.length() > 0) {
-            parts.add(applyStyle(Message.raw(buffer.toString()), color, bold, italic, mono));
+        CompiledTemplates templates() {
+            CompiledTemplates current = templates;
+            if (current == null) {
+                current = new CompiledTemplates(
+                        MessageTemplate.compile(messageSleepStatusTemplate),
+                        MessageTemplate.compile(messageThresholdReachedTemplate),
+                        MessageTemplate.compile(messageThresholdLostTemplate),
+                        MessageTemplate.compile(messageNightSkippedTemplate),
+                        MessageTemplate.compile(messageSleepNotAllowedTemplate));
+                templates = current;
+            }
+            return current;
         }
 
-        return Message.join(parts.toArray(new Message[0]));
+        PluginConfig toConfig() {
+            PluginConfig config = new PluginConfig();
+            config.requiredSleepPercent = sleepPercentageRequired * 100.0;
+            config.skipDelaySeconds = skipDelaySeconds;
+            config.nightStartHour = nightStartHour;
+            config.nightEndHour = nightEndHour;
+            config.nightStartTime = nightStartTime.toString();
+            config.nightEndTime = nightEndTime.toString();
+            config.messageSleepStatus = messageSleepStatusTemplate;
+            config.messageThresholdReached = messageThresholdReachedTemplate;
+            config.messageThresholdLost = messageThresholdLostTemplate;
+            config.messageNightSkipped = messageNightSkippedTemplate;
+            config.messageSleepNotAllowed = messageSleepNotAllowedTemplate;
+            config.coordinationEnabled = coordinationEnabled;
+            config.coordinationShardId = coordinationShardId;
+            config.coordinationTransport = coordinationTransport;
+            config.coordinationBindAddress = coordinationBindAddress;
+            config.coordinationPort = coordinationPort;
+            config.coordinationPeerPorts = new ArrayList<>(coordinationPeerPorts);
+            config.coordinationPeers = new ArrayList<>(coordinationPeers);
+            return config;
+        }
     }
 
-    private Message applyStyle(Message message, String color, boolean bold, boolean italic, boolean mono) {
-        if (color != null) {
-            message.color(color);
-        }
-        if (bold) {
-            message.bold(true);
-        }
-        if (italic) {
-            message.italic(true);
-        }
-        if (mono) {
-            message.monospace(true);
+    private static final class CompiledTemplates {
+        final MessageTemplate sleepStatus;
+        final MessageTemplate thresholdReached;
+        final MessageTemplate thresholdLost;
+        final MessageTemplate nightSkipped;
+        final MessageTemplate sleepNotAllowed;
+
+        CompiledTemplates(MessageTemplate sleepStatus, MessageTemplate thresholdReached, MessageTemplate thresholdLost,
+                MessageTemplate nightSkipped, MessageTemplate sleepNotAllowed) {
+            this.sleepStatus = sleepStatus;
+            this.thresholdReached = thresholdReached;
+            this.thresholdLost = thresholdLost;
+            this.nightSkipped = nightSkipped;
+            this.sleepNotAllowed = sleepNotAllowed;
         }
-        return message;
     }
 }
@@ -0,0 +1,203 @@
+package net.hapore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * SleepCoordinator - Shares sleeping/online counts between shard servers that
+ * run one logical day/night cycle.
+ *
+ * Works in batches:
+ * - The poller records the local counts; nothing is sent right away
+ * - {@link #flush(long)} sends one small packet with only what changed since
+ *   the last flush (counts and/or a night skip), or a heartbeat when idle
+ * - Received counts are kept per shard and dropped when the shard goes quiet
+ */
+public final class SleepCoordinator {
+
+    private static final byte MAGIC = 0x4E;
+    private static final byte PROTOCOL_VERSION = 1;
+    private static final byte ENTRY_COUNTS = 1;
+    private static final byte ENTRY_SKIP = 2;
+    private static final long HEARTBEAT_MILLIS = 5000L;
+    private static final long STALE_MILLIS = 15000L;
+
+    private final String shardId;
+    private final SleepTransport transport;
+    private final Consumer<String> remoteSkipListener;
+    private final Map<String, ShardCounts> remoteShards = new ConcurrentHashMap<>();
+
+    private int localSleeping = 0;
+    private int localOnline = 0;
+    private int sentSleeping = -1;
+    private int sentOnline = -1;
+    private boolean pendingSkip = false;
+    private long lastSentMillis = 0L;
+    private long sequence;
+
+    public SleepCoordinator(String shardId, SleepTransport transport, Consumer<String> remoteSkipListener) {
+        this.shardId = shardId;
+        this.transport = transport;
+        this.remoteSkipListener = remoteSkipListener;
+        // Start from the clock so a restarted shard is not taken as a replay
+        this.sequence = System.currentTimeMillis();
+    }
+
+    public void start() throws IOException {
+        transport.start(this::receive);
+    }
+
+    public void close() {
+        transport.close();
+        remoteShards.clear();
+    }
+
+    /**
+     * Records the counts of this shard. Sent on the next flush if they changed.
+     */
+    public synchronized void publishLocal(int sleeping, int online) {
+        localSleeping = sleeping;
+        localOnline = online;
+    }
+
+    /**
+     * Asks every other shard to apply the night skip on the next flush.
+     */
+    public synchronized void publishSkip() {
+        pendingSkip = true;
+    }
+
+    public void flush(long now) {
+        byte[] payload;
+        synchronized (this) {
+            boolean countsChanged = localSleeping != sentSleeping || localOnline != sentOnline;
+            boolean heartbeatDue = now - lastSentMillis >= HEARTBEAT_MILLIS;
+            if (!countsChanged && !pendingSkip && !heartbeatDue) {
+                return;
+            }
+            try {
+                payload = encode(countsChanged || heartbeatDue, pendingSkip);
+            } catch (IOException e) {
+                return;
+            }
+            sentSleeping = localSleeping;
+            sentOnline = localOnline;
+            pendingSkip = false;
+            lastSentMillis = now;
+        }
+        transport.send(payload);
+    }
+
+    /**
+     * Sums the given local counts with every shard heard from recently.
+     */
+    public Totals totals(long now, int sleeping, int online) {
+        int shards = 1;
+        for (var entry : remoteShards.entrySet()) {
+            ShardCounts counts = entry.getValue();
+            if (now - counts.receivedAtMillis > STALE_MILLIS) {
+                remoteShards.remove(entry.getKey(), counts);
+                continue;
+            }
+            sleeping += counts.sleeping;
+            online += counts.online;
+            shards++;
+        }
+        return new Totals(sleeping, online, shards);
+    }
+
+    private byte[] encode(boolean includeCounts, boolean includeSkip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MAGIC);
+        out.writeByte(PROTOCOL_VERSION);
+        out.writeUTF(shardId);
+        out.writeLong(++sequence);
+        out.writeByte((includeCounts ? 1 : 0) + (includeSkip ? 1 : 0));
+        if (includeCounts) {
+            out.writeByte(ENTRY_COUNTS);
+            out.writeShort(Math.min(localSleeping, Short.MAX_VALUE));
+            out.writeShort(Math.min(localOnline, Short.MAX_VALUE));
+        }
+        if (includeSkip) {
+            out.writeByte(ENTRY_SKIP);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void receive(byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            if (in.readByte() != MAGIC || in.readByte() != PROTOCOL_VERSION) {
+                return;
+            }
+            String sender = in.readUTF();
+            if (shardId.equals(sender)) {
+                return;
+            }
+            long senderSequence = in.readLong();
+            long now = System.currentTimeMillis();
+
+            ShardCounts previous = remoteShards.get(sender);
+            if (previous != null && senderSequence <= previous.sequence && now - previous.receivedAtMillis <= STALE_MILLIS) {
+                return; // Reordered or duplicated datagram
+            }
+            int sleeping = previous != null ? previous.sleeping : 0;
+            int online = previous != null ? previous.online : 0;
+            boolean skip = false;
+
+            int entries = in.readUnsignedByte();
+            for (int i = 0; i < entries; i++) {
+                byte type = in.readByte();
+                if (type == ENTRY_COUNTS) {
+                    sleeping = in.readShort();
+                    online = in.readShort();
+                } else if (type == ENTRY_SKIP) {
+                    skip = true;
+                } else {
+                    return;
+                }
+            }
+
+            remoteShards.put(sender, new ShardCounts(sleeping, online, senderSequence, now));
+            if (skip) {
+                remoteSkipListener.accept(sender);
+            }
+        } catch (IOException e) {
+            // Ignore truncated payloads
+        }
+    }
+
+    public static final class Totals {
+        public final int sleeping;
+        public final int online;
+        public final int shards;
+
+        Totals(int sleeping, int online, int shards) {
+            this.sleeping = sleeping;
+            this.online = online;
+            this.shards = shards;
+        }
+    }
+
+    private static final class ShardCounts {
+        final int sleeping;
+        final int online;
+        final long sequence;
+        final long receivedAtMillis;
+
+        ShardCounts(int sleeping, int online, long sequence, long receivedAtMillis) {
+            this.sleeping = sleeping;
+            this.online = online;
+            this.sequence = sequence;
+            this.receivedAtMillis = receivedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package net.hapore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * SleepStateMachine - Decision core of the sleep check, free of Hytale types.
+ *
+ * Each call to {@link #evaluate} gets the current time, whether it is night,
+ * who is sleeping and how many players are online, and returns what the
+ * caller has to do:
+ * - STATUS: broadcast the sleeping count (only when it changed)
+ * - THRESHOLD_REACHED / CANCEL: the skip countdown started or was lost
+ * - NOTIFY: tell a player that sleeping only works at night
+ * - SKIP: the countdown is over; call {@link #nightSkipped(long)} once applied
+ *
+ * The only clock is the {@code now} argument, so the same inputs always give
+ * the same actions. Keep one instance per world.
+ */
+public final class SleepStateMachine {
+
+    private static final long DAY_SLEEP_GRACE_MILLIS = 2000L;
+
+    private int lastSleepingPlayers = -1;
+    private int lastTotalPlayers = -1;
+    private boolean thresholdActive = false;
+    private long thresholdReachedAtMillis = 0L;
+    private long ignoreDaySleepUntilMillis = Long.MIN_VALUE;
+    private final Set<UUID> notifiedDaySleepers = new HashSet<>();
+
+    public List<Action> evaluate(long now, boolean isNight, Set<UUID> sleepingIds, int onlineCount, Settings settings) {
+        return evaluate(now, isNight, sleepingIds, sleepingIds.size(), onlineCount, settings);
+    }
+
+    /**
+     * Same as {@link #evaluate(long, boolean, Set, int, Settings)} but with the
+     * counts given apart, for when they include players of other shards.
+     * {@code sleepingIds} are still only the local sleepers to notify.
+     */
+    public List<Action> evaluate(long now, boolean isNight, Set<UUID> sleepingIds, int sleepingCount, int onlineCount,
+            Settings settings) {
+        if (onlineCount <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Action> actions = new ArrayList<>();
+        float sleepPercentage = (float) sleepingCount / onlineCount;
+
+        if (sleepingIds.isEmpty()) {
+            notifiedDaySleepers.clear();
+        } else {
+            notifiedDaySleepers.retainAll(sleepingIds);
+        }
+
+        if (isNight && (sleepingCount != lastSleepingPlayers || onlineCount != lastTotalPlayers)) {
+            actions.add(new Action(Type.STATUS, sleepingCount, onlineCount, sleepPercentage, null));
+            lastSleepingPlayers = sleepingCount;
+            lastTotalPlayers = onlineCount;
+        }
+
+        if (!isNight && !sleepingIds.isEmpty()) {
+            if (now >= ignoreDaySleepUntilMillis) {
+                for (UUID playerId : sleepingIds) {
+                    if (notifiedDaySleepers.add(playerId)) {
+                        actions.add(new Action(Type.NOTIFY, sleepingCount, onlineCount, sleepPercentage, playerId));
+                    }
+                }
+            }
+            lastSleepingPlayers = sleepingCount;
+            lastTotalPlayers = onlineCount;
+            thresholdActive = false;
+            return actions;
+        }
+
+        if (!isNight) {
+            thresholdActive = false;
+            return actions;
+        }
+
+        boolean thresholdMet = sleepPercentage >= settings.requiredFraction && sleepingCount > 0;
+        if (thresholdMet) {
+            if (!thresholdActive) {
+                thresholdActive = true;
+                thresholdReachedAtMillis = now;
+                actions.add(new Action(Type.THRESHOLD_REACHED, sleepingCount, onlineCount, sleepPercentage, null));
+            }
+        } else if (thresholdActive) {
+            thresholdActive = false;
+            actions.add(new Action(Type.CANCEL, sleepingCount, onlineCount, sleepPercentage, null));
+        }
+
+        if (thresholdActive && now - thresholdReachedAtMillis >= settings.skipDelayMillis) {
+            actions.add(new Action(Type.SKIP, sleepingCount, onlineCount, sleepPercentage, null));
+        }
+        return actions;
+    }
+
+    /**
+     * Marks the night as skipped. Until then SKIP is returned on every call.
+     */
+    public void nightSkipped(long now) {
+        thresholdActive = false;
+        ignoreDaySleepUntilMillis = now + DAY_SLEEP_GRACE_MILLIS;
+    }
+
+    /**
+     * True right after a skip, while players are still getting out of bed.
+     */
+    public boolean isInSkipGrace(long now) {
+        return now < ignoreDaySleepUntilMillis;
+    }
+
+    /**
+     * Forgets the last broadcast counts and any running countdown.
+     */
+    public void reset() {
+        lastSleepingPlayers = -1;
+        lastTotalPlayers = -1;
+        thresholdActive = false;
+    }
+
+    public int getLastSleepingPlayers() {
+        return lastSleepingPlayers;
+    }
+
+    public int getLastTotalPlayers() {
+        return lastTotalPlayers;
+    }
+
+    public enum Type {
+        STATUS,
+        THRESHOLD_REACHED,
+        NOTIFY,
+        SKIP,
+        CANCEL
+    }
+
+    public static final class Action {
+        public final Type type;
+        public final int sleeping;
+        public final int total;
+        public final float percentage;
+        /** Player to notify; only set for NOTIFY. */
+        public final UUID playerId;
+
+        Action(Type type, int sleeping, int total, float percentage, UUID playerId) {
+            this.type = type;
+            this.sleeping = sleeping;
+            this.total = total;
+            this.percentage = percentage;
+            this.playerId = playerId;
+        }
+
+        @Override
+        public String toString() {
+            return type + (playerId != null ? "(" + playerId + ")" : "(" + sleeping + "/" + total + ")");
+        }
+    }
+
+    public static final class Settings {
+        public final float requiredFraction;
+        public final long skipDelayMillis;
+
+        public Settings(float requiredFraction, long skipDelayMillis) {
+            this.requiredFraction = requiredFraction;
+            this.skipDelayMillis = skipDelayMillis;
+        }
+    }
+}
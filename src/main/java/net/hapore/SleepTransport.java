@@ -0,0 +1,27 @@
+package net.hapore;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * SleepTransport - Carries coordination payloads between shard servers.
+ *
+ * Implementations only move opaque byte arrays; encoding and decoding of the
+ * sleep counts is done by {@link SleepCoordinator}.
+ */
+public interface SleepTransport {
+
+    /**
+     * Opens the transport and starts delivering received payloads to the
+     * given receiver. The receiver may be called from a transport thread.
+     */
+    void start(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Sends a payload to every connected shard. Failures are swallowed: a
+     * lost message is repaired by the next heartbeat.
+     */
+    void send(byte[] payload);
+
+    void close();
+}
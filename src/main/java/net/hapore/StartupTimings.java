@@ -0,0 +1,40 @@
+package net.hapore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StartupTimings - Wall time spent per phase of setup or reload.
+ *
+ * Phases may be recorded from several threads; the report keeps the order in
+ * which they were first recorded.
+ */
+public final class StartupTimings {
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} for the given phase.
+     */
+    public synchronized void record(String phase, long startNanos) {
+        phaseNanos.put(phase, System.nanoTime() - startNanos);
+    }
+
+    public synchronized boolean isEmpty() {
+        return phaseNanos.isEmpty();
+    }
+
+    public synchronized List<String> report() {
+        List<String> lines = new ArrayList<>(phaseNanos.size());
+        for (var entry : phaseNanos.entrySet()) {
+            lines.add(String.format("%-18s %8.2f ms", entry.getKey(), entry.getValue() / 1_000_000.0));
+        }
+        return lines;
+    }
+}
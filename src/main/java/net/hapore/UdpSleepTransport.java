@@ -0,0 +1,121 @@
+package net.hapore;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * UdpSleepTransport - {@link SleepTransport} over UDP between any hosts.
+ *
+ * Binds the given local address and sends every payload to each peer address,
+ * so shards on separate machines can share one day/night cycle.
+ */
+public final class UdpSleepTransport implements SleepTransport {
+
+    private static final int MAX_PAYLOAD_BYTES = 1024;
+
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers;
+    private volatile DatagramSocket socket;
+
+    public UdpSleepTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peers) {
+        this.bindAddress = bindAddress;
+        this.peers = new ArrayList<>();
+        if (peers != null) {
+            for (InetSocketAddress peer : peers) {
+                if (peer != null && !peer.isUnresolved() && !peer.equals(bindAddress)) {
+                    this.peers.add(peer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a "host:port" peer, e.g. "10.0.0.2:25590" or "[::1]:25590".
+     * Returns null when it is malformed or the host does not resolve.
+     */
+    public static InetSocketAddress parseAddress(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        int separator = trimmed.lastIndexOf(':');
+        if (separator <= 0 || separator == trimmed.length() - 1) {
+            return null;
+        }
+        String host = trimmed.substring(0, separator);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        try {
+            int port = Integer.parseInt(trimmed.substring(separator + 1));
+            if (port <= 0 || port > 65535) {
+                return null;
+            }
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            return address.isUnresolved() ? null : address;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) throws IOException {
+        DatagramSocket opened = new DatagramSocket(bindAddress);
+        socket = opened;
+
+        Thread t = new Thread(() -> receiveLoop(opened, receiver), "NoNightmare-SleepTransport");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void receiveLoop(DatagramSocket opened, Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[MAX_PAYLOAD_BYTES];
+        while (!opened.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                opened.receive(packet);
+            } catch (SocketException e) {
+                return; // Socket closed
+            } catch (IOException e) {
+                continue;
+            }
+            byte[] payload = new byte[packet.getLength()];
+            System.arraycopy(packet.getData(), packet.getOffset(), payload, 0, packet.getLength());
+            try {
+                receiver.accept(payload);
+            } catch (Exception e) {
+                // Ignore malformed payloads
+            }
+        }
+    }
+
+    @Override
+    public void send(byte[] payload) {
+        DatagramSocket current = socket;
+        if (current == null || current.isClosed() || payload.length > MAX_PAYLOAD_BYTES) {
+            return;
+        }
+        for (InetSocketAddress peer : peers) {
+            try {
+                current.send(new DatagramPacket(payload, payload.length, peer));
+            } catch (IOException e) {
+                // Peer down; the next heartbeat will catch it up
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        DatagramSocket current = socket;
+        socket = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.hapore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class BedCandidateTrackerTest {
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+
+    @Test
+    void recognisesBedBlockIds() {
+        assertTrue(BedCandidateTracker.isBedId("Furniture_Village_Bed"));
+        assertTrue(BedCandidateTracker.isBedId("Bed_Crude"));
+        assertTrue(BedCandidateTracker.isBedId("hytale:bed"));
+
+        assertFalse(BedCandidateTracker.isBedId("Rock_Bedrock"));
+        assertFalse(BedCandidateTracker.isBedId("Furniture_Village_Chest"));
+        assertFalse(BedCandidateTracker.isBedId(""));
+        assertFalse(BedCandidateTracker.isBedId(null));
+    }
+
+    @Test
+    void candidatesExpireUnlessTouchedAgain() {
+        BedCandidateTracker<String> tracker = new BedCandidateTracker<>(30000L);
+        tracker.touch(ALICE, "alice", 0L);
+        tracker.touch(BOB, "bob", 0L);
+
+        tracker.touch(ALICE, "alice", 20000L);
+        tracker.expire(30001L);
+
+        assertTrue(tracker.contains(ALICE));
+        assertFalse(tracker.contains(BOB));
+        assertEquals(List.of("alice"), tracker.players());
+    }
+
+    @Test
+    void disconnectedCandidatesAreDropped() {
+        BedCandidateTracker<String> tracker = new BedCandidateTracker<>(30000L);
+        tracker.touch(ALICE, "alice", 0L);
+        tracker.touch(BOB, "bob", 0L);
+
+        tracker.remove(BOB);
+        assertTrue(tracker.contains(ALICE));
+        assertFalse(tracker.contains(BOB));
+
+        tracker.remove(ALICE);
+        assertTrue(tracker.isEmpty());
+        assertTrue(tracker.players().isEmpty());
+    }
+}
@@ -0,0 +1,187 @@
+package net.hapore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SleepCoordinatorTest {
+
+    private static final long WAIT_MILLIS = 2000L;
+
+    private final List<SleepCoordinator> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeCoordinators() {
+        for (SleepCoordinator coordinator : opened) {
+            coordinator.close();
+        }
+    }
+
+    @Test
+    void totalsIncludeRemoteCounts() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        SleepCoordinator a = open("a", new LoopbackSleepTransport(portA, List.of(portB)), shard -> { });
+        SleepCoordinator b = open("b", new LoopbackSleepTransport(portB, List.of(portA)), shard -> { });
+
+        a.publishLocal(2, 5);
+        b.publishLocal(1, 3);
+        a.flush(System.currentTimeMillis());
+        b.flush(System.currentTimeMillis());
+
+        awaitTrue(() -> a.totals(System.currentTimeMillis(), 2, 5).shards == 2);
+        SleepCoordinator.Totals totals = a.totals(System.currentTimeMillis(), 2, 5);
+        assertEquals(3, totals.sleeping);
+        assertEquals(8, totals.online);
+
+        awaitTrue(() -> b.totals(System.currentTimeMillis(), 1, 3).online == 8);
+    }
+
+    @Test
+    void udpTransportReachesPeersByAddress() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        InetSocketAddress addressA = UdpSleepTransport.parseAddress("127.0.0.1:" + portA);
+        InetSocketAddress addressB = UdpSleepTransport.parseAddress("127.0.0.1:" + portB);
+        assertNull(UdpSleepTransport.parseAddress("127.0.0.1"));
+        assertNull(UdpSleepTransport.parseAddress("127.0.0.1:0"));
+
+        SleepCoordinator a = open("a", new UdpSleepTransport(addressA, List.of(addressB)), shard -> { });
+        SleepCoordinator b = open("b", new UdpSleepTransport(addressB, List.of(addressA)), shard -> { });
+
+        b.publishLocal(1, 2);
+        b.flush(System.currentTimeMillis());
+
+        awaitTrue(() -> a.totals(System.currentTimeMillis(), 0, 1).shards == 2);
+        assertEquals(3, a.totals(System.currentTimeMillis(), 0, 1).online);
+    }
+
+    @Test
+    void skipReachesRemoteListener() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        List<String> skipsFrom = new CopyOnWriteArrayList<>();
+        open("a", new LoopbackSleepTransport(portA, List.of(portB)), skipsFrom::add);
+        SleepCoordinator b = open("b", new LoopbackSleepTransport(portB, List.of(portA)), shard -> { });
+
+        b.publishSkip();
+        b.flush(System.currentTimeMillis());
+
+        awaitTrue(() -> !skipsFrom.isEmpty());
+        assertEquals(List.of("b"), skipsFrom);
+    }
+
+    @Test
+    void quietShardIsDroppedFromTotals() throws Exception {
+        int portA = freePort();
+        int portB = freePort();
+        SleepCoordinator a = open("a", new LoopbackSleepTransport(portA, List.of(portB)), shard -> { });
+        SleepCoordinator b = open("b", new LoopbackSleepTransport(portB, List.of(portA)), shard -> { });
+
+        b.publishLocal(1, 1);
+        b.flush(System.currentTimeMillis());
+        awaitTrue(() -> a.totals(System.currentTimeMillis(), 0, 1).shards == 2);
+
+        SleepCoordinator.Totals stale = a.totals(System.currentTimeMillis() + 15001L, 0, 1);
+        assertEquals(1, stale.shards);
+        assertEquals(0, stale.sleeping);
+        assertEquals(1, stale.online);
+    }
+
+    @Test
+    void duplicatedAndReorderedPacketsAreIgnored() throws Exception {
+        int portB = freePort();
+        List<String> skipsFrom = new CopyOnWriteArrayList<>();
+        SleepCoordinator b = open("b", new LoopbackSleepTransport(portB, List.of()), skipsFrom::add);
+
+        RecordingTransport recordedA = new RecordingTransport();
+        SleepCoordinator a = open("a", recordedA, shard -> { });
+        a.publishLocal(1, 2);
+        a.flush(System.currentTimeMillis());
+        a.publishLocal(3, 4);
+        a.publishSkip();
+        a.flush(System.currentTimeMillis());
+        assertEquals(2, recordedA.payloads.size());
+
+        RecordingTransport recordedC = new RecordingTransport();
+        SleepCoordinator c = open("c", recordedC, shard -> { });
+        c.publishLocal(0, 1);
+        c.flush(System.currentTimeMillis());
+
+        try (DatagramSocket sender = new DatagramSocket()) {
+            send(sender, portB, recordedA.payloads.get(1));
+            awaitTrue(() -> b.totals(System.currentTimeMillis(), 0, 0).online == 4);
+
+            // Duplicated and older packets, then one from another shard as a marker
+            send(sender, portB, recordedA.payloads.get(1));
+            send(sender, portB, recordedA.payloads.get(0));
+            send(sender, portB, recordedC.payloads.get(0));
+            awaitTrue(() -> b.totals(System.currentTimeMillis(), 0, 0).shards == 3);
+        }
+
+        SleepCoordinator.Totals totals = b.totals(System.currentTimeMillis(), 0, 0);
+        assertEquals(3, totals.sleeping);
+        assertEquals(5, totals.online);
+        assertEquals(List.of("a"), skipsFrom);
+    }
+
+    private SleepCoordinator open(String shardId, SleepTransport transport, Consumer<String> skipListener)
+            throws IOException {
+        SleepCoordinator coordinator = new SleepCoordinator(shardId, transport, skipListener);
+        coordinator.start();
+        opened.add(coordinator);
+        return coordinator;
+    }
+
+    private static int freePort() throws IOException {
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void send(DatagramSocket sender, int port, byte[] payload) throws IOException {
+        sender.send(new DatagramPacket(payload, payload.length, InetAddress.getLoopbackAddress(), port));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                break;
+            }
+            Thread.sleep(10L);
+        }
+        assertTrue(condition.getAsBoolean(), "condition not met within " + WAIT_MILLIS + " ms");
+    }
+
+    private static final class RecordingTransport implements SleepTransport {
+        final List<byte[]> payloads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void start(Consumer<byte[]> receiver) {
+        }
+
+        @Override
+        public void send(byte[] payload) {
+            payloads.add(payload);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package net.hapore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class SleepStateMachineTest {
+
+    private static final SleepStateMachine.Settings HALF_TWO_SECONDS = new SleepStateMachine.Settings(0.5f, 2000L);
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+
+    private final SleepStateMachine machine = new SleepStateMachine();
+
+    @Test
+    void statusIsBroadcastOnlyWhenCountsChange() {
+        assertEquals(types(SleepStateMachine.Type.STATUS), night(0L, 4));
+        assertEquals(types(), night(1000L, 4));
+
+        assertEquals(types(SleepStateMachine.Type.STATUS), night(2000L, 4, ALICE));
+        assertEquals(types(), night(3000L, 4, ALICE));
+
+        assertEquals(types(SleepStateMachine.Type.STATUS), night(4000L, 5, ALICE));
+    }
+
+    @Test
+    void thresholdStartsAndSkipsAfterDelay() {
+        assertEquals(types(SleepStateMachine.Type.STATUS), night(0L, 4, ALICE));
+        assertEquals(types(SleepStateMachine.Type.STATUS, SleepStateMachine.Type.THRESHOLD_REACHED),
+                night(1000L, 4, ALICE, BOB));
+        assertEquals(types(), night(2999L, 4, ALICE, BOB));
+        assertEquals(types(SleepStateMachine.Type.SKIP), night(3000L, 4, ALICE, BOB));
+    }
+
+    @Test
+    void losingThresholdCancelsCountdown() {
+        night(0L, 2, ALICE);
+        assertEquals(types(SleepStateMachine.Type.STATUS, SleepStateMachine.Type.CANCEL), night(1000L, 2));
+        assertEquals(types(), night(5000L, 2));
+
+        // A new countdown starts from the time the threshold is met again
+        assertEquals(types(SleepStateMachine.Type.STATUS, SleepStateMachine.Type.THRESHOLD_REACHED),
+                night(6000L, 2, ALICE));
+        assertEquals(types(), night(7999L, 2, ALICE));
+        assertEquals(types(SleepStateMachine.Type.SKIP), night(8000L, 2, ALICE));
+    }
+
+    @Test
+    void countdownStartsAtTimeZero() {
+        SleepStateMachine.Settings noDelay = new SleepStateMachine.Settings(0.5f, 0L);
+        List<SleepStateMachine.Action> first = machine.evaluate(0L, true, ids(ALICE), 1, noDelay);
+        assertEquals(types(SleepStateMachine.Type.STATUS, SleepStateMachine.Type.THRESHOLD_REACHED,
+                SleepStateMachine.Type.SKIP), typesOf(first));
+
+        List<SleepStateMachine.Action> second = machine.evaluate(0L, true, ids(ALICE), 1, noDelay);
+        assertEquals(types(SleepStateMachine.Type.SKIP), typesOf(second));
+    }
+
+    @Test
+    void skipRepeatsUntilNightSkipped() {
+        night(0L, 1, ALICE);
+        assertEquals(types(SleepStateMachine.Type.SKIP), night(2000L, 1, ALICE));
+        assertEquals(types(SleepStateMachine.Type.SKIP), night(3000L, 1, ALICE));
+
+        machine.nightSkipped(3000L);
+        assertEquals(types(SleepStateMachine.Type.THRESHOLD_REACHED), night(4000L, 1, ALICE));
+    }
+
+    @Test
+    void daySleepersAreNotNotifiedDuringSkipGrace() {
+        night(0L, 1, ALICE);
+        machine.nightSkipped(2000L);
+        assertTrue(machine.isInSkipGrace(3999L));
+
+        assertEquals(types(), day(3999L, 1, ALICE));
+        assertFalse(machine.isInSkipGrace(4000L));
+        assertEquals(types(SleepStateMachine.Type.NOTIFY), day(4000L, 1, ALICE));
+    }
+
+    @Test
+    void notifyFiresOncePerPlayerAndResetsWhenTheyLeaveBed() {
+        List<SleepStateMachine.Action> actions = machine.evaluate(0L, false, ids(ALICE, BOB), 2, HALF_TWO_SECONDS);
+        assertEquals(types(SleepStateMachine.Type.NOTIFY, SleepStateMachine.Type.NOTIFY), typesOf(actions));
+        assertEquals(ALICE, actions.get(0).playerId);
+        assertEquals(BOB, actions.get(1).playerId);
+
+        assertEquals(types(), day(1000L, 2, ALICE, BOB));
+
+        // Bob gets up: only Alice stays notified
+        assertEquals(types(), day(2000L, 2, ALICE));
+        actions = machine.evaluate(3000L, false, ids(ALICE, BOB), 2, HALF_TWO_SECONDS);
+        assertEquals(1, actions.size());
+        assertEquals(BOB, actions.get(0).playerId);
+
+        // Everyone gets up: both are notified again next time
+        assertEquals(types(), day(4000L, 2));
+        assertEquals(types(SleepStateMachine.Type.NOTIFY, SleepStateMachine.Type.NOTIFY), day(5000L, 2, ALICE, BOB));
+    }
+
+    @Test
+    void sameInputsGiveSameActions() {
+        SleepStateMachine other = new SleepStateMachine();
+        long[] times = {0L, 500L, 1500L, 2500L, 4000L};
+        for (long now : times) {
+            assertEquals(
+                    typesOf(machine.evaluate(now, true, ids(ALICE), 2, HALF_TWO_SECONDS)),
+                    typesOf(other.evaluate(now, true, ids(ALICE), 2, HALF_TWO_SECONDS)));
+        }
+    }
+
+    private List<SleepStateMachine.Type> night(long now, int online, UUID... sleeping) {
+        return typesOf(machine.evaluate(now, true, ids(sleeping), online, HALF_TWO_SECONDS));
+    }
+
+    private List<SleepStateMachine.Type> day(long now, int online, UUID... sleeping) {
+        return typesOf(machine.evaluate(now, false, ids(sleeping), online, HALF_TWO_SECONDS));
+    }
+
+    private static Set<UUID> ids(UUID... playerIds) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        Collections.addAll(ids, playerIds);
+        return ids;
+    }
+
+    private static List<SleepStateMachine.Type> types(SleepStateMachine.Type... types) {
+        List<SleepStateMachine.Type> list = new ArrayList<>();
+        Collections.addAll(list, types);
+        return list;
+    }
+
+    private static List<SleepStateMachine.Type> typesOf(List<SleepStateMachine.Action> actions) {
+        List<SleepStateMachine.Type> list = new ArrayList<>();
+        for (SleepStateMachine.Action action : actions) {
+            list.add(action.type);
+        }
+        return list;
+    }
+}